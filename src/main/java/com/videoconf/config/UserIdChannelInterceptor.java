@@ -0,0 +1,42 @@
+package com.videoconf.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+import java.security.Principal;
+
+// Привязывает к STOMP-сессии Principal с именем из заголовка userId кадра CONNECT,
+// чтобы convertAndSendToUser(userId, ...) находил сессию участника
+public class UserIdChannelInterceptor implements ChannelInterceptor {
+
+    public static final String USER_ID_HEADER = "userId";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String userId = accessor.getFirstNativeHeader(USER_ID_HEADER);
+            if (userId != null && !userId.isBlank()) {
+                accessor.setUser(new UserIdPrincipal(userId));
+            }
+        }
+        return message;
+    }
+
+    private static class UserIdPrincipal implements Principal {
+        private final String name;
+
+        UserIdPrincipal(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
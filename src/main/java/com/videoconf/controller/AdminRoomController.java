@@ -0,0 +1,60 @@
+package com.videoconf.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoconf.model.RoomSummary;
+import com.videoconf.service.RoomService;
+import com.videoconf.service.WebRTCSessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/rooms")
+public class AdminRoomController {
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private WebRTCSessionService sessionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Потоковый список активных комнат в формате NDJSON: одна комната на строку
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> streamRooms(@RequestParam(defaultValue = "500") int batchSize) {
+        int size = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+
+        StreamingResponseBody body = outputStream ->
+                roomService.forEachActiveRoomBatch(size, rooms -> {
+                    for (RoomSummary room : rooms) {
+                        outputStream.write(objectMapper.writeValueAsBytes(toRow(room)));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                });
+
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private Map<String, Object> toRow(RoomSummary room) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("roomId", room.getId());
+        row.put("name", room.getName());
+        row.put("ownerId", room.getOwnerId());
+        row.put("createdAt", room.getCreatedAt() != null ? room.getCreatedAt().toString() : null);
+        row.put("maxParticipants", room.getMaxParticipants());
+        // Живые участники хранятся в памяти, это поиск в ConcurrentHashMap, а не запрос к БД
+        row.put("participantCount", sessionService.getRoomUserCount(room.getId()));
+        return row;
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.videoconf.controller;
 import com.videoconf.model.ChatMessage;
 import com.videoconf.model.Room;
 import com.videoconf.repository.RoomRepository;
+import com.videoconf.service.ChatHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -21,19 +22,34 @@ public class ChatController {
     @Autowired
     private RoomRepository roomRepository;
 
-    private final Map<String, List<Map<String, Object>>> roomMessages = new HashMap<>();
+    @Autowired
+    private ChatHistoryService chatHistoryService;
 
     // Получить историю сообщений комнаты
     @GetMapping("/{roomId}/history")
     public ResponseEntity<?> getChatHistory(@PathVariable String roomId) {
-        List<Map<String, Object>> messages = roomMessages.getOrDefault(roomId, new ArrayList<>());
+        List<Map<String, Object>> messages = chatHistoryService.getHistory(roomId);
         return ResponseEntity.ok(messages);
     }
 
-    // Очистить историю сообщений комнаты
+    // Поиск по истории сообщений комнаты
+    @GetMapping("/{roomId}/search")
+    public ResponseEntity<?> searchChatHistory(@PathVariable String roomId,
+                                               @RequestParam("q") String query,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "20") int size) {
+        if (query.isBlank() || page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "Invalid search parameters")
+            );
+        }
+        return ResponseEntity.ok(chatHistoryService.search(roomId, query, page, size));
+    }
+
+    // Очистить историю сообщений комнаты (вместе с поисковым индексом)
     @DeleteMapping("/{roomId}/clear")
     public ResponseEntity<?> clearChatHistory(@PathVariable String roomId) {
-        roomMessages.remove(roomId);
+        chatHistoryService.clearHistory(roomId);
         return ResponseEntity.ok().build();
     }
 
@@ -51,7 +67,7 @@ public class ChatController {
         systemMessage.put("roomId", roomId);
 
         // Сохраняем в историю
-        roomMessages.computeIfAbsent(roomId, k -> new ArrayList<>()).add(systemMessage);
+        chatHistoryService.addMessage(roomId, systemMessage);
 
         // Отправляем всем участникам комнаты
         messagingTemplate.convertAndSend("/topic/room/" + roomId + "/chat", systemMessage);
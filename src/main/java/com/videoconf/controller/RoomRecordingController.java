@@ -0,0 +1,55 @@
+package com.videoconf.controller;
+
+import com.videoconf.service.RoomRecordingService;
+import com.videoconf.service.RoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rooms/{roomId}/recording")
+public class RoomRecordingController {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomRecordingService recordingService;
+
+    // Начать запись: внешний RTP-форвардер отправляет пакеты на возвращённый UDP-порт.
+    // В теле можно передать {"allowedSources": ["10.0.0.5"]} - адреса, с которых принимаются пакеты
+    @PostMapping("/start")
+    public ResponseEntity<?> startRecording(@PathVariable String roomId,
+                                            @RequestBody(required = false) Map<String, List<String>> request) {
+        if (!roomService.roomExists(roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            List<String> sources = request != null ? request.get("allowedSources") : null;
+            return ResponseEntity.ok(recordingService.startRecording(roomId, sources).getStats());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "Failed to start recording: " + e.getMessage())
+            );
+        }
+    }
+
+    // Остановить запись и закрыть файлы
+    @PostMapping("/stop")
+    public ResponseEntity<?> stopRecording(@PathVariable String roomId) {
+        return recordingService.stopRecording(roomId)
+                .map(recorder -> ResponseEntity.ok(recorder.getStats()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Текущее состояние записи
+    @GetMapping
+    public ResponseEntity<?> getRecordingStatus(@PathVariable String roomId) {
+        return recordingService.getRecorder(roomId)
+                .map(recorder -> ResponseEntity.ok(recorder.getStats()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -41,4 +41,9 @@ public class RoomStatusController {
             );
         }
     }
+
+    @GetMapping("/{roomId}/negotiations")
+    public ResponseEntity<?> getRoomNegotiations(@PathVariable String roomId) {
+        return ResponseEntity.ok(sessionService.getNegotiations(roomId));
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.videoconf.controller;
 
+import com.videoconf.service.ChatHistoryService;
+import com.videoconf.service.RoomRecordingService;
 import com.videoconf.service.WebRTCSessionService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -16,17 +18,31 @@ public class WebRTCSignalingController {
 
     private final SimpMessagingTemplate messagingTemplate;
     private final WebRTCSessionService sessionService;
+    private final ChatHistoryService chatHistoryService;
+    private final RoomRecordingService recordingService;
 
     public WebRTCSignalingController(SimpMessagingTemplate messagingTemplate,
-                                     WebRTCSessionService sessionService) {
+                                     WebRTCSessionService sessionService,
+                                     ChatHistoryService chatHistoryService,
+                                     RoomRecordingService recordingService) {
         this.messagingTemplate = messagingTemplate;
         this.sessionService = sessionService;
+        this.chatHistoryService = chatHistoryService;
+        this.recordingService = recordingService;
     }
 
     @MessageMapping("/webrtc.offer")
     public void handleOffer(Map<String, Object> message) {
         String targetUser = (String) message.get("targetUserId");
+        String roomId = (String) message.get("roomId");
+        String userId = (String) message.get("userId");
         if (targetUser != null) {
+            // Встречный offer от стороны, которая по плану отвечает, не пересылаем
+            if (roomId != null && userId != null
+                    && !sessionService.registerOffer(roomId, userId, targetUser)) {
+                System.out.println("Dropped glare offer from " + userId + " to " + targetUser + " in room " + roomId);
+                return;
+            }
             messagingTemplate.convertAndSendToUser(targetUser, "/queue/webrtc", message);
         }
     }
@@ -34,7 +50,12 @@ public class WebRTCSignalingController {
     @MessageMapping("/webrtc.answer")
     public void handleAnswer(Map<String, Object> message) {
         String targetUser = (String) message.get("targetUserId");
+        String roomId = (String) message.get("roomId");
+        String userId = (String) message.get("userId");
         if (targetUser != null) {
+            if (roomId != null && userId != null) {
+                sessionService.registerAnswer(roomId, userId, targetUser);
+            }
             messagingTemplate.convertAndSendToUser(targetUser, "/queue/webrtc", message);
         }
     }
@@ -60,6 +81,9 @@ public class WebRTCSignalingController {
             // Добавляем информацию об участниках
             message.put("participantCount", sessionService.getRoomUserCount(roomId));
 
+            // Сохраняем в историю и поисковый индекс
+            chatHistoryService.addMessage(roomId, message);
+
             // Отправляем сообщение всем подписчикам комнаты
             messagingTemplate.convertAndSend("/topic/room/" + roomId + "/chat", message);
 
@@ -75,8 +99,8 @@ public class WebRTCSignalingController {
         String username = (String) message.get("username");
 
         if (roomId != null && userId != null && username != null) {
-            // Добавляем пользователя в сессию
-            sessionService.addUserToRoom(roomId, userId, username);
+            // Добавляем пользователя в сессию и сразу получаем план соединений для него
+            List<WebRTCSessionService.PeerNegotiation> plan = sessionService.joinRoom(roomId, userId, username);
 
             // Получаем список участников БЕЗ текущего пользователя для отправки ему
             List<WebRTCSessionService.UserSession> otherParticipants = sessionService.getRoomUsers(roomId)
@@ -116,9 +140,53 @@ public class WebRTCSignalingController {
             roomStatus.put("timestamp", LocalDateTime.now().toString());
 
             messagingTemplate.convertAndSendToUser(userId, "/queue/room-status", roomStatus);
+
+            // Рассылаем план соединений: новый участник отправляет offer каждому,
+            // остальные только ждут offer от него
+            sendConnectPlan(roomId, userId, username, plan);
+        }
+    }
+
+    private void sendConnectPlan(String roomId, String userId, String username,
+                                 List<WebRTCSessionService.PeerNegotiation> plan) {
+        List<Map<String, Object>> offerTo = plan.stream()
+                .map(negotiation -> peerInfo(roomId, negotiation.answererId))
+                .collect(Collectors.toList());
+
+        Map<String, Object> newcomerPlan = new HashMap<>();
+        newcomerPlan.put("type", "CONNECT_PLAN");
+        newcomerPlan.put("roomId", roomId);
+        newcomerPlan.put("offerTo", offerTo);
+        newcomerPlan.put("awaitFrom", List.of());
+        newcomerPlan.put("timestamp", LocalDateTime.now().toString());
+
+        messagingTemplate.convertAndSendToUser(userId, "/queue/webrtc", newcomerPlan);
+
+        Map<String, Object> newcomer = new HashMap<>();
+        newcomer.put("userId", userId);
+        newcomer.put("username", username);
+
+        for (WebRTCSessionService.PeerNegotiation negotiation : plan) {
+            Map<String, Object> peerPlan = new HashMap<>();
+            peerPlan.put("type", "CONNECT_PLAN");
+            peerPlan.put("roomId", roomId);
+            peerPlan.put("offerTo", List.of());
+            peerPlan.put("awaitFrom", List.of(newcomer));
+            peerPlan.put("timestamp", LocalDateTime.now().toString());
+
+            messagingTemplate.convertAndSendToUser(negotiation.answererId, "/queue/webrtc", peerPlan);
         }
     }
 
+    private Map<String, Object> peerInfo(String roomId, String userId) {
+        Map<String, Object> peer = new HashMap<>();
+        peer.put("userId", userId);
+        peer.put("username", sessionService.getUserSession(roomId, userId)
+                .map(session -> session.username)
+                .orElse(null));
+        return peer;
+    }
+
     // ОБРАБОТКА ВЫХОДА ИЗ КОМНАТЫ
     @MessageMapping("/room.leave")
     public void handleUserLeave(Map<String, Object> message) {
@@ -130,6 +198,12 @@ public class WebRTCSignalingController {
             // Удаляем пользователя из сессии
             sessionService.removeUserFromRoom(roomId, userId);
 
+            // Комната опустела: история чата, поисковый индекс и запись больше не нужны
+            if (sessionService.getRoomUserCount(roomId) == 0) {
+                chatHistoryService.clearHistory(roomId);
+                recordingService.stopRecording(roomId);
+            }
+
             // Получаем список оставшихся участников
             List<WebRTCSessionService.UserSession> remainingParticipants = sessionService.getRoomUsers(roomId);
 
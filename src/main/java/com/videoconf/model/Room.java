@@ -6,7 +6,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "rooms")
+@Table(name = "rooms", indexes = {
+        @Index(name = "idx_rooms_active_created", columnList = "isActive, createdAt, id"),
+        @Index(name = "idx_rooms_created", columnList = "createdAt")
+})
 public class Room {
     @Id
     private String id;
@@ -0,0 +1,12 @@
+package com.videoconf.model;
+
+import java.time.LocalDateTime;
+
+// Проекция комнаты для списков: не управляемая сущность, в persistence context не попадает
+public interface RoomSummary {
+    String getId();
+    String getName();
+    String getOwnerId();
+    LocalDateTime getCreatedAt();
+    int getMaxParticipants();
+}
@@ -1,8 +1,14 @@
 package com.videoconf.repository;
 
 import com.videoconf.model.Room;
+import com.videoconf.model.RoomSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +17,19 @@ public interface RoomRepository extends JpaRepository<Room, String> {
     Optional<Room> findByInviteCodeAndIsActiveTrue(String inviteCode);
     boolean existsByIdAndIsActiveTrue(String id);
     boolean existsByInviteCodeAndIsActiveTrue(String inviteCode);
+
+    // Keyset-пагинация активных комнат по (createdAt, id), см. индекс idx_rooms_active_created.
+    // Возвращают проекции, а не сущности, чтобы при потоковой выдаче не копить их в persistence context
+    @Query("select r.id as id, r.name as name, r.ownerId as ownerId, r.createdAt as createdAt,"
+            + " r.maxParticipants as maxParticipants"
+            + " from Room r where r.isActive = true order by r.createdAt, r.id")
+    List<RoomSummary> findActiveRoomsFirstBatch(Pageable pageable);
+
+    @Query("select r.id as id, r.name as name, r.ownerId as ownerId, r.createdAt as createdAt,"
+            + " r.maxParticipants as maxParticipants"
+            + " from Room r where r.isActive = true and (r.createdAt > :createdAt"
+            + " or (r.createdAt = :createdAt and r.id > :id)) order by r.createdAt, r.id")
+    List<RoomSummary> findActiveRoomsAfter(@Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") String id,
+                                    Pageable pageable);
 }
\ No newline at end of file
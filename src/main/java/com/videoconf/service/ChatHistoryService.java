@@ -0,0 +1,177 @@
+package com.videoconf.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+@Service
+public class ChatHistoryService {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final Map<String, RoomHistory> roomHistories = new ConcurrentHashMap<>();
+    private final int maxMessagesPerRoom;
+
+    // История комнаты вместе с инвертированным индексом: токен -> номера сообщений по возрастанию
+    private static class RoomHistory {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        Map<String, PostingList> index = new HashMap<>();
+        // Выставляется при удалении истории, чтобы addMessage не писал в уже удалённый объект
+        boolean evicted;
+    }
+
+    private static class PostingList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    public static class SearchResult {
+        public String query;
+        public int page;
+        public int size;
+        public int total;
+        public List<Map<String, Object>> messages;
+
+        public SearchResult(String query, int page, int size, int total, List<Map<String, Object>> messages) {
+            this.query = query;
+            this.page = page;
+            this.size = size;
+            this.total = total;
+            this.messages = messages;
+        }
+    }
+
+    public ChatHistoryService(@Value("${chat.history.max-messages-per-room:5000}") int maxMessagesPerRoom) {
+        this.maxMessagesPerRoom = maxMessagesPerRoom;
+    }
+
+    public void addMessage(String roomId, Map<String, Object> message) {
+        while (true) {
+            RoomHistory history = roomHistories.computeIfAbsent(roomId, k -> new RoomHistory());
+            synchronized (history) {
+                if (history.evicted) {
+                    continue;
+                }
+                indexMessage(history, history.messages.size(), message);
+                history.messages.add(message);
+
+                // Храним не больше лимита: при превышении на четверть отбрасываем старые сообщения
+                // и перестраиваем индекс, так что перестройка амортизируется
+                if (history.messages.size() > maxMessagesPerRoom + Math.max(1, maxMessagesPerRoom / 4)) {
+                    compact(history);
+                }
+                return;
+            }
+        }
+    }
+
+    public List<Map<String, Object>> getHistory(String roomId) {
+        RoomHistory history = roomHistories.get(roomId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        synchronized (history) {
+            return new ArrayList<>(history.messages);
+        }
+    }
+
+    public void clearHistory(String roomId) {
+        RoomHistory history = roomHistories.get(roomId);
+        if (history != null) {
+            synchronized (history) {
+                history.evicted = true;
+                roomHistories.remove(roomId, history);
+            }
+        }
+    }
+
+    // Поиск сообщений, содержащих все слова запроса; новые сообщения первыми
+    public SearchResult search(String roomId, String query, int page, int size) {
+        Set<String> tokens = tokenize(query);
+        RoomHistory history = roomHistories.get(roomId);
+        if (history == null || tokens.isEmpty()) {
+            return new SearchResult(query, page, size, 0, Collections.emptyList());
+        }
+
+        synchronized (history) {
+            List<PostingList> postings = new ArrayList<>();
+            for (String token : tokens) {
+                PostingList posting = history.index.get(token);
+                if (posting == null) {
+                    return new SearchResult(query, page, size, 0, Collections.emptyList());
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(p -> p.size));
+
+            int[] matches = Arrays.copyOf(postings.get(0).ids, postings.get(0).size);
+            int matchCount = matches.length;
+            for (int i = 1; i < postings.size() && matchCount > 0; i++) {
+                matchCount = intersect(matches, matchCount, postings.get(i));
+            }
+
+            List<Map<String, Object>> pageMessages = new ArrayList<>();
+            long from = (long) page * size;
+            for (long i = from; i < from + size && i < matchCount; i++) {
+                pageMessages.add(history.messages.get(matches[matchCount - 1 - (int) i]));
+            }
+            return new SearchResult(query, page, size, matchCount, pageMessages);
+        }
+    }
+
+    private static void indexMessage(RoomHistory history, int id, Map<String, Object> message) {
+        Object content = message.get("content");
+        if (content != null) {
+            for (String token : tokenize(content.toString())) {
+                history.index.computeIfAbsent(token, k -> new PostingList()).add(id);
+            }
+        }
+    }
+
+    private void compact(RoomHistory history) {
+        List<Map<String, Object>> retained = new ArrayList<>(history.messages.subList(
+                history.messages.size() - maxMessagesPerRoom, history.messages.size()));
+        history.messages = retained;
+        history.index = new HashMap<>();
+        for (int id = 0; id < retained.size(); id++) {
+            indexMessage(history, id, retained.get(id));
+        }
+    }
+
+    // Пересечение отсортированных списков на месте, возвращает новую длину
+    private static int intersect(int[] matches, int matchCount, PostingList other) {
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < matchCount && j < other.size; ) {
+            if (matches[i] < other.ids[j]) {
+                i++;
+            } else if (matches[i] > other.ids[j]) {
+                j++;
+            } else {
+                matches[count++] = matches[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
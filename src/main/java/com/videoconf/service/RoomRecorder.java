@@ -0,0 +1,266 @@
+package com.videoconf.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Запись RTP-пакетов одной комнаты, которые внешний форвардер шлёт на UDP-порт рекордера.
+// Приём и запись в разных потоках, между ними ограниченная очередь: если диск не успевает,
+// пакеты отбрасываются, а не задерживают приём. Каждый SSRC пишется в свою серию сегментов
+public class RoomRecorder {
+    private static final int RTP_HEADER_SIZE = 12;
+    // Заголовок записи: длина пакета (int) + время получения в мс (long)
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    private final String roomId;
+    private final Path directory;
+    private final long segmentSize;
+    private final Set<InetAddress> allowedSources;
+    private final int maxTracks;
+    private final DatagramChannel channel;
+    private final int port;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> writeQueue;
+    private final ByteBuffer scratchBuffer;
+    private final Map<Long, TrackWriter> tracks = new HashMap<>();
+    private final Thread receiverThread;
+    private final Thread writerThread;
+    private final LocalDateTime startedAt;
+
+    private final AtomicLong receivedPackets = new AtomicLong();
+    private final AtomicLong writtenPackets = new AtomicLong();
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public RoomRecorder(String roomId, Path directory, long segmentSize,
+                        int queueCapacity, int packetBufferSize,
+                        InetAddress bindAddress, Set<InetAddress> allowedSources,
+                        int maxTracks) throws IOException {
+        this.roomId = roomId;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.allowedSources = Set.copyOf(allowedSources);
+        this.maxTracks = maxTracks;
+        this.startedAt = LocalDateTime.now();
+
+        // Сначала порт: если bind не удался, ни каталога, ни буферов ещё нет
+        this.channel = DatagramChannel.open();
+        boolean directoryCreated = false;
+        try {
+            channel.bind(new InetSocketAddress(bindAddress, 0));
+            this.port = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+            Files.createDirectories(directory);
+            directoryCreated = true;
+
+            // Все буферы выделяются заранее, во время записи память не аллоцируется
+            this.freeBuffers = new ArrayBlockingQueue<>(queueCapacity);
+            this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+            for (int i = 0; i < queueCapacity; i++) {
+                freeBuffers.add(ByteBuffer.allocateDirect(packetBufferSize));
+            }
+            this.scratchBuffer = ByteBuffer.allocateDirect(packetBufferSize);
+
+            this.receiverThread = new Thread(this::receiveLoop, "recorder-rx-" + roomId);
+            this.writerThread = new Thread(this::writeLoop, "recorder-io-" + roomId);
+            this.receiverThread.setDaemon(true);
+            this.writerThread.setDaemon(true);
+            this.receiverThread.start();
+            this.writerThread.start();
+        } catch (IOException | RuntimeException | Error e) {
+            running = false;
+            channel.close();
+            if (directoryCreated) {
+                try {
+                    // Удаляется только пустой каталог, уже записанные сегменты не трогаем
+                    Files.deleteIfExists(directory);
+                } catch (IOException ignored) {
+                    // Каталог не пуст - оставляем
+                }
+            }
+            throw e;
+        }
+    }
+
+    public String getRoomId() { return roomId; }
+    public Path getDirectory() { return directory; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public boolean isRunning() { return running; }
+
+    public int getPort() { return port; }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("roomId", roomId);
+        stats.put("recording", running);
+        stats.put("port", getPort());
+        stats.put("directory", directory.toString());
+        stats.put("startedAt", startedAt.toString());
+        stats.put("receivedPackets", receivedPackets.get());
+        stats.put("writtenPackets", writtenPackets.get());
+        stats.put("droppedPackets", droppedPackets.get());
+        stats.put("writtenBytes", writtenBytes.get());
+        return stats;
+    }
+
+    // Останавливает приём, дописывает очередь и закрывает файлы
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing recorder channel for room " + roomId + ": " + e.getMessage());
+        }
+        try {
+            receiverThread.join(1000);
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            ByteBuffer buffer = freeBuffers.poll();
+            boolean pooled = buffer != null;
+            if (!pooled) {
+                // Писатель отстаёт: вычитываем пакет во временный буфер и отбрасываем
+                buffer = scratchBuffer;
+            }
+            buffer.clear();
+            SocketAddress source;
+            try {
+                source = channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                if (pooled) freeBuffers.offer(buffer);
+                break;
+            } catch (IOException e) {
+                System.err.println("Recorder receive error in room " + roomId + ": " + e.getMessage());
+                if (pooled) freeBuffers.offer(buffer);
+                continue;
+            }
+            receivedPackets.incrementAndGet();
+
+            buffer.flip();
+            if (!pooled || !isAllowedSource(source) || !isRtp(buffer) || !writeQueue.offer(buffer)) {
+                droppedPackets.incrementAndGet();
+                if (pooled) freeBuffers.offer(buffer);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running || !writeQueue.isEmpty()) {
+                ByteBuffer packet = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (packet == null) {
+                    continue;
+                }
+                try {
+                    long ssrc = packet.getInt(packet.position() + 8) & 0xFFFFFFFFL;
+                    TrackWriter track = tracks.get(ssrc);
+                    if (track == null) {
+                        if (tracks.size() >= maxTracks) {
+                            // Лимит дорожек исчерпан: новые SSRC не открывают файлов
+                            droppedPackets.incrementAndGet();
+                            continue;
+                        }
+                        track = new TrackWriter(ssrc);
+                        tracks.put(ssrc, track);
+                    }
+                    writtenBytes.addAndGet(track.write(packet));
+                    writtenPackets.incrementAndGet();
+                } catch (IOException e) {
+                    droppedPackets.incrementAndGet();
+                    System.err.println("Recorder write error in room " + roomId + ": " + e.getMessage());
+                } finally {
+                    freeBuffers.offer(packet);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            tracks.values().forEach(TrackWriter::close);
+            tracks.clear();
+        }
+    }
+
+    private boolean isAllowedSource(SocketAddress source) {
+        return source instanceof InetSocketAddress
+                && allowedSources.contains(((InetSocketAddress) source).getAddress());
+    }
+
+    private static boolean isRtp(ByteBuffer packet) {
+        return packet.remaining() >= RTP_HEADER_SIZE
+                && ((packet.get(packet.position()) & 0xC0) >> 6) == 2;
+    }
+
+    // Запись одной дорожки в последовательность сегментов <ssrc>-<номер>.rtp
+    private class TrackWriter {
+        private final long ssrc;
+        private final ByteBuffer header = ByteBuffer.allocateDirect(RECORD_HEADER_SIZE);
+        private final ByteBuffer[] record = new ByteBuffer[2];
+        private FileChannel file;
+        private int segmentIndex;
+
+        TrackWriter(long ssrc) throws IOException {
+            this.ssrc = ssrc;
+            openSegment();
+        }
+
+        long write(ByteBuffer packet) throws IOException {
+            int length = packet.remaining();
+            if (file.position() > 0 && file.position() + RECORD_HEADER_SIZE + length > segmentSize) {
+                file.close();
+                segmentIndex++;
+                openSegment();
+            }
+
+            header.clear();
+            header.putInt(length).putLong(System.currentTimeMillis()).flip();
+            record[0] = header;
+            record[1] = packet;
+
+            long written = 0;
+            while (packet.hasRemaining()) {
+                written += file.write(record);
+            }
+            return written;
+        }
+
+        void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.err.println("Error closing segment for ssrc " + ssrc + ": " + e.getMessage());
+            }
+        }
+
+        private void openSegment() throws IOException {
+            Path path = directory.resolve(String.format("%08x-%04d.rtp", ssrc, segmentIndex));
+            file = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.videoconf.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class RoomRecordingService {
+    private static final DateTimeFormatter FOLDER_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Map<String, RoomRecorder> recorders = new ConcurrentHashMap<>();
+
+    @Value("${recording.directory:recordings}")
+    private String recordingDirectory;
+
+    @Value("${recording.segment-size:67108864}")
+    private long segmentSize;
+
+    @Value("${recording.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${recording.packet-buffer-size:1500}")
+    private int packetBufferSize;
+
+    @Value("${recording.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${recording.allowed-sources:127.0.0.1}")
+    private List<String> defaultAllowedSources;
+
+    @Value("${recording.max-tracks:32}")
+    private int maxTracks;
+
+    @Value("${recording.max-recorders:8}")
+    private int maxRecorders;
+
+    // sources - адреса RTP-форвардеров, от которых принимаются пакеты; если пусто, берутся из настроек.
+    // Каждый рекордер держит порт, два потока и заранее выделенные буферы, поэтому их число ограничено
+    public synchronized RoomRecorder startRecording(String roomId, List<String> sources) throws IOException {
+        RoomRecorder existing = recorders.get(roomId);
+        if (existing != null) {
+            return existing;
+        }
+        if (recorders.size() >= maxRecorders) {
+            throw new IllegalStateException("Recorder limit reached (" + maxRecorders + ")");
+        }
+
+        Set<InetAddress> allowedSources = new HashSet<>();
+        for (String source : sources == null || sources.isEmpty() ? defaultAllowedSources : sources) {
+            allowedSources.add(InetAddress.getByName(source.trim()));
+        }
+
+        Path directory = Paths.get(recordingDirectory, roomId, LocalDateTime.now().format(FOLDER_FORMAT));
+        RoomRecorder recorder = new RoomRecorder(roomId, directory, segmentSize, queueCapacity, packetBufferSize,
+                InetAddress.getByName(bindAddress), allowedSources, maxTracks);
+        recorders.put(roomId, recorder);
+        return recorder;
+    }
+
+    public Optional<RoomRecorder> stopRecording(String roomId) {
+        RoomRecorder recorder = recorders.remove(roomId);
+        if (recorder != null) {
+            recorder.stop();
+        }
+        return Optional.ofNullable(recorder);
+    }
+
+    public Optional<RoomRecorder> getRecorder(String roomId) {
+        return Optional.ofNullable(recorders.get(roomId));
+    }
+
+    public boolean isRecording(String roomId) {
+        return recorders.containsKey(roomId);
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        recorders.keySet().forEach(this::stopRecording);
+    }
+}
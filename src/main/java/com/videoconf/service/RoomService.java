@@ -1,10 +1,14 @@
 package com.videoconf.service;
 
 import com.videoconf.model.Room;
+import com.videoconf.model.RoomSummary;
 import com.videoconf.repository.RoomRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -43,6 +47,25 @@ public class RoomService {
         return roomRepository.existsByInviteCodeAndIsActiveTrue(inviteCode);
     }
 
+    public interface RoomBatchConsumer {
+        void accept(List<RoomSummary> rooms) throws IOException;
+    }
+
+    // Обход всех активных комнат пачками по keyset-курсору (createdAt, id).
+    // Каждая пачка читается отдельным запросом, поэтому в памяти не больше batchSize комнат
+    public void forEachActiveRoomBatch(int batchSize, RoomBatchConsumer consumer) throws IOException {
+        PageRequest limit = PageRequest.of(0, batchSize);
+        List<RoomSummary> batch = roomRepository.findActiveRoomsFirstBatch(limit);
+        while (!batch.isEmpty()) {
+            consumer.accept(batch);
+            if (batch.size() < batchSize) {
+                break;
+            }
+            RoomSummary last = batch.get(batch.size() - 1);
+            batch = roomRepository.findActiveRoomsAfter(last.getCreatedAt(), last.getId(), limit);
+        }
+    }
+
     private String generateRoomId() {
         return UUID.randomUUID().toString().substring(0, 8);
     }
@@ -9,6 +9,14 @@ import java.time.LocalDateTime;
 @Service
 public class WebRTCSessionService {
     private final Map<String, Map<String, UserSession>> roomSessions = new ConcurrentHashMap<>();
+    // Состояние согласования для каждой пары участников: roomId -> ключ пары -> состояние
+    private final Map<String, Map<String, PeerNegotiation>> roomNegotiations = new ConcurrentHashMap<>();
+
+    public enum NegotiationState {
+        PLANNED,
+        OFFER_SENT,
+        CONNECTED
+    }
 
     public static class UserSession {
         public String userId;
@@ -24,20 +32,56 @@ public class WebRTCSessionService {
         }
     }
 
-    public void addUserToRoom(String roomId, String userId, String username) {
-        roomSessions.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>())
-                .put(userId, new UserSession(userId, username));
+    public static class PeerNegotiation {
+        public String offererId;
+        public String answererId;
+        public NegotiationState state;
+        public LocalDateTime updatedAt;
+
+        public PeerNegotiation(String offererId, String answererId) {
+            this.offererId = offererId;
+            this.answererId = answererId;
+            this.state = NegotiationState.PLANNED;
+            this.updatedAt = LocalDateTime.now();
+        }
+    }
+
+    // Добавляет участника и планирует его соединения одной атомарной операцией над комнатой.
+    // Новый участник инициирует соединение со всеми, кто уже в комнате, поэтому для каждой пары
+    // ровно один offer. При одновременном входе двоих второй всегда видит первого, а первый второго нет
+    public List<PeerNegotiation> joinRoom(String roomId, String userId, String username) {
+        List<PeerNegotiation> plan = new ArrayList<>();
+        roomSessions.compute(roomId, (k, room) -> {
+            Map<String, UserSession> sessions = room != null ? room : new ConcurrentHashMap<>();
+            Map<String, PeerNegotiation> negotiations =
+                    roomNegotiations.computeIfAbsent(roomId, key -> new ConcurrentHashMap<>());
+            for (UserSession peer : sessions.values()) {
+                if (!peer.userId.equals(userId)) {
+                    PeerNegotiation negotiation = new PeerNegotiation(userId, peer.userId);
+                    negotiations.put(pairKey(userId, peer.userId), negotiation);
+                    plan.add(negotiation);
+                }
+            }
+            sessions.put(userId, new UserSession(userId, username));
+            return sessions;
+        });
+        return plan;
     }
 
     public void removeUserFromRoom(String roomId, String userId) {
-        Map<String, UserSession> room = roomSessions.get(roomId);
-        if (room != null) {
+        roomSessions.computeIfPresent(roomId, (k, room) -> {
             room.remove(userId);
-            // Удаляем комнату если она пустая
-            if (room.isEmpty()) {
-                roomSessions.remove(roomId);
+
+            Map<String, PeerNegotiation> negotiations = roomNegotiations.get(roomId);
+            if (negotiations != null) {
+                negotiations.values().removeIf(n -> n.offererId.equals(userId) || n.answererId.equals(userId));
+                if (negotiations.isEmpty()) {
+                    roomNegotiations.remove(roomId);
+                }
             }
-        }
+            // Удаляем комнату если она пустая
+            return room.isEmpty() ? null : room;
+        });
     }
 
     public List<UserSession> getRoomUsers(String roomId) {
@@ -61,4 +105,52 @@ public class WebRTCSessionService {
         Map<String, UserSession> room = roomSessions.get(roomId);
         return room != null ? Optional.ofNullable(room.get(userId)) : Optional.empty();
     }
+
+    // Возвращает false, если offer пришёл от стороны, которая по плану должна отвечать.
+    // Записи создаёт только joinRoom: offer для незапланированной пары пропускается без учёта,
+    // иначе произвольный roomId из клиента оставлял бы записи, которые никто не удалит
+    public boolean registerOffer(String roomId, String fromUserId, String toUserId) {
+        Map<String, PeerNegotiation> negotiations = roomNegotiations.get(roomId);
+        PeerNegotiation negotiation = negotiations != null ? negotiations.get(pairKey(fromUserId, toUserId)) : null;
+        if (negotiation == null) {
+            return true;
+        }
+        synchronized (negotiation) {
+            if (!negotiation.offererId.equals(fromUserId)) {
+                if (negotiation.state != NegotiationState.CONNECTED) {
+                    return false;
+                }
+                // Повторное согласование уже установленного соединения может начать любая сторона
+                negotiation.answererId = negotiation.offererId;
+                negotiation.offererId = fromUserId;
+            }
+            negotiation.state = NegotiationState.OFFER_SENT;
+            negotiation.updatedAt = LocalDateTime.now();
+            return true;
+        }
+    }
+
+    public void registerAnswer(String roomId, String fromUserId, String toUserId) {
+        Map<String, PeerNegotiation> negotiations = roomNegotiations.get(roomId);
+        PeerNegotiation negotiation = negotiations != null ? negotiations.get(pairKey(fromUserId, toUserId)) : null;
+        if (negotiation != null) {
+            synchronized (negotiation) {
+                if (negotiation.answererId.equals(fromUserId)) {
+                    negotiation.state = NegotiationState.CONNECTED;
+                    negotiation.updatedAt = LocalDateTime.now();
+                }
+            }
+        }
+    }
+
+    public List<PeerNegotiation> getNegotiations(String roomId) {
+        Map<String, PeerNegotiation> negotiations = roomNegotiations.get(roomId);
+        return negotiations != null ? new ArrayList<>(negotiations.values()) : Collections.emptyList();
+    }
+
+    private static String pairKey(String firstUserId, String secondUserId) {
+        return firstUserId.compareTo(secondUserId) < 0
+                ? firstUserId + "|" + secondUserId
+                : secondUserId + "|" + firstUserId;
+    }
 }
\ No newline at end of file
@@ -10,6 +10,10 @@ class RoomManager {
         this.isConnected = false;
         this.localStream = null;
         this.remoteStreams = new Map();
+        this.peerConnections = new Map();
+        this.iceServers = [{ urls: 'stun:stun.l.google.com:19302' }];
+        this.joinStartedAt = null;
+        this.firstFrameReported = false;
         this.isVideoEnabled = true;
         this.isAudioEnabled = true;
         this.isScreenSharing = false;
@@ -140,7 +144,8 @@ class RoomManager {
         const socket = new SockJS('/ws');
         this.stompClient = Stomp.over(socket);
 
-        this.stompClient.connect({}, (frame) => {
+        // userId в заголовке CONNECT: сервер привязывает его к сессии для /user/queue/...
+        this.stompClient.connect({ userId: this.currentUser.id }, (frame) => {
             console.log('Connected: ' + frame);
             this.isConnected = true;
 
@@ -206,6 +211,7 @@ class RoomManager {
             case 'USER_LEFT':
                 // Удаляем участника (сервер уже отфильтровал текущего пользователя)
                 this.removeParticipant(message.userId);
+                this.closePeerConnection(message.userId);
                 this.updateParticipantCount(message.participantCount);
                 if (message.username) {
                     this.displaySystemMessage(message.username + ' покинул конференцию');
@@ -230,9 +236,152 @@ class RoomManager {
     }
 
     // Обработка WebRTC сообщений
-    handleWebRTCMessage(message) {
+    async handleWebRTCMessage(message) {
         console.log('WebRTC message:', message);
-        // Здесь будет логика обработки WebRTC сообщений
+
+        try {
+            switch (message.type) {
+                case 'CONNECT_PLAN':
+                    await this.handleConnectPlan(message);
+                    break;
+
+                case 'OFFER':
+                    await this.handleOffer(message);
+                    break;
+
+                case 'ANSWER':
+                    await this.handleAnswer(message);
+                    break;
+
+                case 'ICE_CANDIDATE':
+                    await this.handleIceCandidate(message);
+                    break;
+            }
+        } catch (error) {
+            console.error('Error handling WebRTC message:', error);
+        }
+    }
+
+    // План соединений от сервера: offer отправляем только тем, кого назначил сервер,
+    // от остальных ждем offer, поэтому встречных offer'ов не возникает
+    async handleConnectPlan(plan) {
+        (plan.awaitFrom || []).forEach(peer => {
+            this.addParticipant(peer.userId, peer.username);
+            this.getOrCreatePeerConnection(peer.userId);
+        });
+
+        await Promise.all((plan.offerTo || []).map(async peer => {
+            this.addParticipant(peer.userId, peer.username);
+            const pc = this.getOrCreatePeerConnection(peer.userId);
+            const offer = await pc.createOffer();
+            await pc.setLocalDescription(offer);
+            this.sendWebRTCMessage('/app/webrtc.offer', 'OFFER', peer.userId, { sdp: pc.localDescription });
+        }));
+    }
+
+    async handleOffer(message) {
+        // Соединение создаем только для известных участников, offer от ушедшего игнорируем
+        const pc = this.peerConnections.get(message.userId)
+            || (this.participants.has(message.userId) ? this.getOrCreatePeerConnection(message.userId) : null);
+        if (!pc) return;
+        if (pc.signalingState !== 'stable') {
+            // Сервер пропускает только offer назначенной стороны, поэтому свой offer откатываем
+            await pc.setLocalDescription({ type: 'rollback' });
+        }
+        await pc.setRemoteDescription(message.sdp);
+        await this.flushPendingCandidates(pc);
+        const answer = await pc.createAnswer();
+        await pc.setLocalDescription(answer);
+        this.sendWebRTCMessage('/app/webrtc.answer', 'ANSWER', message.userId, { sdp: pc.localDescription });
+    }
+
+    async handleAnswer(message) {
+        const pc = this.peerConnections.get(message.userId);
+        if (pc) {
+            await pc.setRemoteDescription(message.sdp);
+            await this.flushPendingCandidates(pc);
+        }
+    }
+
+    async handleIceCandidate(message) {
+        // Кандидаты после USER_LEFT не должны создавать новое соединение
+        const pc = this.peerConnections.get(message.userId);
+        if (!pc) return;
+        if (pc.remoteDescription) {
+            await pc.addIceCandidate(message.candidate);
+        } else {
+            pc.pendingCandidates.push(message.candidate);
+        }
+    }
+
+    async flushPendingCandidates(pc) {
+        const candidates = pc.pendingCandidates.splice(0);
+        for (const candidate of candidates) {
+            await pc.addIceCandidate(candidate);
+        }
+    }
+
+    // Создание RTCPeerConnection для удаленного участника
+    getOrCreatePeerConnection(userId) {
+        if (this.peerConnections.has(userId)) {
+            return this.peerConnections.get(userId);
+        }
+
+        const pc = new RTCPeerConnection({ iceServers: this.iceServers });
+        pc.pendingCandidates = [];
+
+        if (this.localStream) {
+            this.localStream.getTracks().forEach(track => pc.addTrack(track, this.localStream));
+        }
+
+        pc.onicecandidate = (event) => {
+            if (event.candidate) {
+                this.sendWebRTCMessage('/app/webrtc.ice-candidate', 'ICE_CANDIDATE', userId,
+                    { candidate: event.candidate });
+            }
+        };
+
+        pc.ontrack = (event) => {
+            const stream = event.streams[0];
+            this.remoteStreams.set(userId, stream);
+            const video = document.getElementById(`video-${userId}`);
+            if (video && video.srcObject !== stream) {
+                video.srcObject = stream;
+                video.addEventListener('loadeddata', () => this.reportFirstFrame(userId), { once: true });
+            }
+        };
+
+        this.peerConnections.set(userId, pc);
+        return pc;
+    }
+
+    closePeerConnection(userId) {
+        const pc = this.peerConnections.get(userId);
+        if (pc) {
+            pc.close();
+            this.peerConnections.delete(userId);
+        }
+        this.remoteStreams.delete(userId);
+    }
+
+    sendWebRTCMessage(destination, type, targetUserId, payload) {
+        if (this.stompClient && this.isConnected) {
+            const message = Object.assign({
+                type: type,
+                roomId: this.currentRoomId,
+                userId: this.currentUser.id,
+                targetUserId: targetUserId
+            }, payload);
+            this.stompClient.send(destination, {}, JSON.stringify(message));
+        }
+    }
+
+    // Время от отправки join до первого кадра удаленного видео
+    reportFirstFrame(userId) {
+        if (this.firstFrameReported || this.joinStartedAt === null) return;
+        this.firstFrameReported = true;
+        const elapsed = Math.round(performance.now() - this.joinStartedAt);
+        console.log(`Time to first frame (from ${userId}): ${elapsed} ms`);
     }
 
     // Обработка статуса комнаты
@@ -371,6 +520,7 @@ class RoomManager {
             };
 
             console.log('Sending join message:', joinMessage);
+            this.joinStartedAt = performance.now();
             this.stompClient.send("/app/room.join", {}, JSON.stringify(joinMessage));
         }
     }
@@ -638,6 +788,16 @@ class RoomManager {
             this.localStream = newStream;
             document.getElementById('localVideo').srcObject = newStream;
 
+            // Подменяем треки в существующих соединениях без повторного согласования
+            await Promise.all(Array.from(this.peerConnections.values()).flatMap(pc =>
+                pc.getSenders()
+                    .filter(sender => sender.track)
+                    .map(sender => {
+                        const track = newStream.getTracks().find(t => t.kind === sender.track.kind);
+                        return track ? sender.replaceTrack(track) : Promise.resolve();
+                    })
+            ));
+
             document.getElementById('settingsModal').style.display = 'none';
             this.showTempMessage('✅ Настройки применены');
 
@@ -689,6 +849,8 @@ class RoomManager {
 
     // Остановка всех медиа потоков
     stopAllMediaStreams() {
+        this.peerConnections.forEach(pc => pc.close());
+        this.peerConnections.clear();
         if (this.localStream) {
             this.localStream.getTracks().forEach(track => track.stop());
         }
@@ -0,0 +1,198 @@
+package com.videoconf.controller;
+
+import com.videoconf.service.ChatHistoryService;
+import com.videoconf.service.RoomRecordingService;
+import com.videoconf.service.WebRTCSessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class WebRTCSignalingControllerTest {
+
+    private static final int FULL_ROOM = 10;
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final WebRTCSessionService sessionService = new WebRTCSessionService();
+    private final ChatHistoryService chatHistoryService = new ChatHistoryService(100);
+    private final RoomRecordingService recordingService = mock(RoomRecordingService.class);
+    private final WebRTCSignalingController controller = new WebRTCSignalingController(
+            messagingTemplate, sessionService, chatHistoryService, recordingService);
+
+    // Сообщения в /user/{id}/queue/webrtc: [получатель, сообщение]
+    private final Queue<Object[]> webrtcQueue = new ConcurrentLinkedQueue<>();
+
+    private int offersSent;
+    private int offersDelivered;
+    private int answersDelivered;
+
+    WebRTCSignalingControllerTest() {
+        doAnswer(invocation -> {
+            webrtcQueue.add(new Object[]{invocation.getArgument(0), invocation.getArgument(2)});
+            return null;
+        }).when(messagingTemplate).convertAndSendToUser(anyString(), eq("/queue/webrtc"), any());
+    }
+
+    @Test
+    void evictsChatHistoryWhenLastUserLeaves() {
+        controller.handleUserJoin(roomMessage("alice"));
+        controller.handleUserJoin(roomMessage("bob"));
+        controller.handleChatMessage(chatMessage("alice", "hello"));
+
+        controller.handleUserLeave(roomMessage("alice"));
+        assertEquals(1, chatHistoryService.search("room", "hello", 0, 10).total);
+
+        controller.handleUserLeave(roomMessage("bob"));
+        assertTrue(chatHistoryService.getHistory("room").isEmpty());
+    }
+
+    @Test
+    void stopsRecordingWhenLastUserLeaves() {
+        controller.handleUserJoin(roomMessage("alice"));
+        controller.handleUserJoin(roomMessage("bob"));
+
+        controller.handleUserLeave(roomMessage("alice"));
+        verify(recordingService, never()).stopRecording("room");
+
+        controller.handleUserLeave(roomMessage("bob"));
+        verify(recordingService).stopRecording("room");
+    }
+
+    // Время до первого кадра здесь не измерить (нет медиа), поэтому проверяется его замена:
+    // число обменов сигнализацией до того, как каждая пара готова передавать медиа.
+    // Без плана обе стороны пары слали offer (glare) и требовался откат и повторный обмен
+    @Test
+    void newcomerIntoFullRoomNeedsOneOfferAndOneAnswerPerPair() {
+        for (int i = 0; i < FULL_ROOM - 1; i++) {
+            controller.handleUserJoin(roomMessage("user" + i));
+            deliverAll();
+        }
+        resetCounters();
+
+        controller.handleUserJoin(roomMessage("newcomer"));
+        // План уходит всем в рамках обработки join, без дополнительных обменов
+        assertEquals(FULL_ROOM, webrtcQueue.size());
+        deliverAll();
+
+        int pairs = FULL_ROOM - 1;
+        assertEquals(pairs, offersSent);
+        assertEquals(pairs, offersDelivered);
+        assertEquals(pairs, answersDelivered);
+        assertAllConnected(FULL_ROOM * (FULL_ROOM - 1) / 2);
+    }
+
+    @Test
+    void concurrentJoinsNeedOneOfferAndOneAnswerPerPair() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(FULL_ROOM);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < FULL_ROOM; i++) {
+                Map<String, Object> join = roomMessage("user" + i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    controller.handleUserJoin(join);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        deliverAll();
+
+        int pairs = FULL_ROOM * (FULL_ROOM - 1) / 2;
+        // Каждая пара: один offer, ни одного отброшенного, один ответ
+        assertEquals(pairs, offersSent);
+        assertEquals(pairs, offersDelivered);
+        assertEquals(pairs, answersDelivered);
+        assertAllConnected(pairs);
+    }
+
+    // Клиенты ведут себя как room.js: offer по плану, answer на каждый offer
+    @SuppressWarnings("unchecked")
+    private void deliverAll() {
+        Object[] delivery;
+        while ((delivery = webrtcQueue.poll()) != null) {
+            String recipient = (String) delivery[0];
+            Map<String, Object> message = (Map<String, Object>) delivery[1];
+            switch ((String) message.get("type")) {
+                case "CONNECT_PLAN":
+                    for (Map<String, Object> peer : (List<Map<String, Object>>) message.get("offerTo")) {
+                        offersSent++;
+                        controller.handleOffer(signal("OFFER", recipient, (String) peer.get("userId")));
+                    }
+                    break;
+                case "OFFER":
+                    offersDelivered++;
+                    controller.handleAnswer(signal("ANSWER", recipient, (String) message.get("userId")));
+                    break;
+                case "ANSWER":
+                    answersDelivered++;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void assertAllConnected(int pairs) {
+        List<WebRTCSessionService.PeerNegotiation> negotiations = sessionService.getNegotiations("room");
+        assertEquals(pairs, negotiations.size());
+        negotiations.forEach(negotiation ->
+                assertEquals(WebRTCSessionService.NegotiationState.CONNECTED, negotiation.state));
+    }
+
+    private void resetCounters() {
+        offersSent = 0;
+        offersDelivered = 0;
+        answersDelivered = 0;
+    }
+
+    private static Map<String, Object> signal(String type, String from, String to) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", type);
+        message.put("roomId", "room");
+        message.put("userId", from);
+        message.put("targetUserId", to);
+        return message;
+    }
+
+    private static Map<String, Object> roomMessage(String userId) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("roomId", "room");
+        message.put("userId", userId);
+        message.put("username", userId);
+        return message;
+    }
+
+    private static Map<String, Object> chatMessage(String userId, String content) {
+        Map<String, Object> message = roomMessage(userId);
+        message.put("type", "CHAT");
+        message.put("content", content);
+        return message;
+    }
+}
@@ -0,0 +1,127 @@
+package com.videoconf.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WebRTCSignalingIntegrationTest {
+
+    private static final String PROBE = "PROBE";
+
+    @LocalServerPort
+    private int port;
+
+    private final List<StompSession> sessions = new ArrayList<>();
+
+    @AfterEach
+    void disconnect() {
+        sessions.forEach(StompSession::disconnect);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deliversConnectPlanAndSignalingToUserQueues() throws Exception {
+        BlockingQueue<Map<String, Object>> aliceQueue = new LinkedBlockingQueue<>();
+        BlockingQueue<Map<String, Object>> bobQueue = new LinkedBlockingQueue<>();
+        StompSession alice = connect("alice", aliceQueue);
+        StompSession bob = connect("bob", bobQueue);
+
+        alice.send("/app/room.join", Map.of("roomId", "it-room", "userId", "alice", "username", "Alice"));
+        Map<String, Object> alicePlan = aliceQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(alicePlan);
+        assertEquals("CONNECT_PLAN", alicePlan.get("type"));
+        assertEquals(List.of(), alicePlan.get("offerTo"));
+
+        bob.send("/app/room.join", Map.of("roomId", "it-room", "userId", "bob", "username", "Bob"));
+
+        Map<String, Object> bobPlan = bobQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(bobPlan);
+        List<Map<String, Object>> offerTo = (List<Map<String, Object>>) bobPlan.get("offerTo");
+        assertEquals(1, offerTo.size());
+        assertEquals("alice", offerTo.get(0).get("userId"));
+
+        Map<String, Object> alicePeerPlan = aliceQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(alicePeerPlan);
+        List<Map<String, Object>> awaitFrom = (List<Map<String, Object>>) alicePeerPlan.get("awaitFrom");
+        assertEquals("bob", awaitFrom.get(0).get("userId"));
+
+        bob.send("/app/webrtc.offer", Map.of("type", "OFFER", "roomId", "it-room",
+                "userId", "bob", "targetUserId", "alice"));
+        Map<String, Object> offer = aliceQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(offer);
+        assertEquals("OFFER", offer.get("type"));
+
+        alice.send("/app/webrtc.answer", Map.of("type", "ANSWER", "roomId", "it-room",
+                "userId", "alice", "targetUserId", "bob"));
+        Map<String, Object> answer = bobQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(answer);
+        assertEquals("ANSWER", answer.get("type"));
+    }
+
+    private StompSession connect(String userId, BlockingQueue<Map<String, Object>> queue) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("userId", userId);
+        StompSession session = client.connect("http://localhost:" + port + "/ws", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}).get(5, TimeUnit.SECONDS);
+        sessions.add(session);
+
+        BlockingQueue<Map<String, Object>> probes = new LinkedBlockingQueue<>();
+        session.subscribe("/user/queue/webrtc", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                Map<String, Object> message = (Map<String, Object>) payload;
+                (PROBE.equals(message.get("type")) ? probes : queue).add(message);
+            }
+        });
+        awaitSubscription(session, userId, probes);
+        return session;
+    }
+
+    // Простой брокер не подтверждает SUBSCRIBE (RECEIPT только для DISCONNECT), поэтому шлём себе
+    // ICE-сообщение через relay, пока оно не вернётся - тогда подписка точно активна.
+    // Пробы складываются в отдельную очередь и в проверки теста не попадают
+    private static void awaitSubscription(StompSession session, String userId,
+                                          BlockingQueue<Map<String, Object>> probes) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            session.send("/app/webrtc.ice-candidate", Map.of("type", PROBE, "targetUserId", userId));
+            if (probes.poll(100, TimeUnit.MILLISECONDS) != null) {
+                return;
+            }
+        }
+        throw new AssertionError("Subscription for " + userId + " did not become active");
+    }
+}
@@ -0,0 +1,100 @@
+package com.videoconf.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatHistoryServiceTest {
+
+    private final ChatHistoryService service = new ChatHistoryService(100);
+
+    @Test
+    void tokenizesCaseInsensitivelyAcrossPunctuationAndCyrillic() {
+        add("room", "Привет всем, начинаем!");
+        add("room", "Release-plan: FRIDAY");
+
+        assertEquals(List.of("Привет всем, начинаем!"), contents(service.search("room", "ПРИВЕТ", 0, 10)));
+        assertEquals(List.of("Release-plan: FRIDAY"), contents(service.search("room", "friday release", 0, 10)));
+        assertEquals(0, service.search("room", "?!", 0, 10).total);
+    }
+
+    @Test
+    void returnsOnlyMessagesContainingAllTokensNewestFirst() {
+        add("room", "release plan today");
+        add("room", "lunch plan");
+        add("room", "plan for release on friday");
+        add("room", "release notes");
+
+        ChatHistoryService.SearchResult result = service.search("room", "release plan", 0, 10);
+
+        assertEquals(2, result.total);
+        assertEquals(List.of("plan for release on friday", "release plan today"), contents(result));
+        assertEquals(0, service.search("room", "release missing", 0, 10).total);
+    }
+
+    @Test
+    void pagesThroughMatches() {
+        for (int i = 0; i < 5; i++) {
+            add("room", "hello " + i);
+        }
+
+        assertEquals(List.of("hello 4", "hello 3"), contents(service.search("room", "hello", 0, 2)));
+        assertEquals(List.of("hello 2", "hello 1"), contents(service.search("room", "hello", 1, 2)));
+        assertEquals(List.of("hello 0"), contents(service.search("room", "hello", 2, 2)));
+        assertEquals(5, service.search("room", "hello", 2, 2).total);
+    }
+
+    @Test
+    void returnsEmptyPageBeyondResultsWithoutOverflow() {
+        add("room", "hello");
+
+        ChatHistoryService.SearchResult result = service.search("room", "hello", 107374183, 20);
+
+        assertEquals(1, result.total);
+        assertTrue(result.messages.isEmpty());
+    }
+
+    @Test
+    void keepsHistoryAndIndexWithinLimit() {
+        for (int i = 0; i < 1000; i++) {
+            add("room", "message " + i + (i % 2 == 0 ? " even" : ""));
+        }
+
+        List<Map<String, Object>> history = service.getHistory("room");
+        assertTrue(history.size() <= 125);
+        assertEquals("message 999", history.get(history.size() - 1).get("content"));
+        assertEquals(0, service.search("room", "0", 0, 10).total);
+        assertEquals(List.of("message 998 even"), contents(service.search("room", "even", 0, 1)));
+    }
+
+    @Test
+    void clearRemovesHistoryAndIndex() {
+        add("room", "hello");
+        add("other", "hello");
+
+        service.clearHistory("room");
+
+        assertTrue(service.getHistory("room").isEmpty());
+        assertEquals(0, service.search("room", "hello", 0, 10).total);
+        assertEquals(1, service.search("other", "hello", 0, 10).total);
+
+        add("room", "hello again");
+        assertEquals(1, service.search("room", "hello", 0, 10).total);
+    }
+
+    private void add(String roomId, String content) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("content", content);
+        service.addMessage(roomId, message);
+    }
+
+    private static List<Object> contents(ChatHistoryService.SearchResult result) {
+        return result.messages.stream().map(message -> message.get("content")).collect(Collectors.toList());
+    }
+}
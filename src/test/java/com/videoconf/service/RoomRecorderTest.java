@@ -0,0 +1,119 @@
+package com.videoconf.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomRecorderTest {
+
+    private static final int PACKET_SIZE = 112;
+    private static final int RECORD_SIZE = PACKET_SIZE + 12;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesSegmentedFilesPerSsrc() throws Exception {
+        RoomRecorder recorder = newRecorder(Set.of(InetAddress.getLoopbackAddress()), 32);
+        try (DatagramChannel peer = openPeer()) {
+            for (int i = 0; i < 100; i++) {
+                send(peer, recorder, i, i % 2 == 0 ? 0xAABBCCDD : 0x11223344);
+            }
+            awaitReceived(recorder, 100);
+        } finally {
+            recorder.stop();
+        }
+
+        assertEquals(100L, recorder.getStats().get("writtenPackets"));
+        assertEquals(0L, recorder.getStats().get("droppedPackets"));
+
+        // Сегмент 2000 байт вмещает 16 записей, 50 пакетов на дорожку -> 4 сегмента
+        List<String> files = listFiles();
+        assertEquals(8, files.size());
+        assertTrue(files.contains("aabbccdd-0000.rtp"));
+        assertTrue(files.contains("11223344-0003.rtp"));
+        assertEquals(16L * RECORD_SIZE, Files.size(directory.resolve("aabbccdd-0000.rtp")));
+        assertEquals(2L * RECORD_SIZE, Files.size(directory.resolve("aabbccdd-0003.rtp")));
+    }
+
+    @Test
+    void dropsPacketsFromUnknownSources() throws Exception {
+        RoomRecorder recorder = newRecorder(Set.of(InetAddress.getByName("192.0.2.1")), 32);
+        try (DatagramChannel peer = openPeer()) {
+            for (int i = 0; i < 10; i++) {
+                send(peer, recorder, i, 0xAABBCCDD);
+            }
+            awaitReceived(recorder, 10);
+        } finally {
+            recorder.stop();
+        }
+
+        assertEquals(0L, recorder.getStats().get("writtenPackets"));
+        assertEquals(10L, recorder.getStats().get("droppedPackets"));
+        assertTrue(listFiles().isEmpty());
+    }
+
+    @Test
+    void dropsPacketsBeyondTrackLimit() throws Exception {
+        RoomRecorder recorder = newRecorder(Set.of(InetAddress.getLoopbackAddress()), 1);
+        try (DatagramChannel peer = openPeer()) {
+            for (int i = 0; i < 10; i++) {
+                send(peer, recorder, i, 0x1000 + i % 2);
+            }
+            awaitReceived(recorder, 10);
+        } finally {
+            recorder.stop();
+        }
+
+        assertEquals(5L, recorder.getStats().get("writtenPackets"));
+        assertEquals(5L, recorder.getStats().get("droppedPackets"));
+        assertEquals(List.of("00001000-0000.rtp"), listFiles());
+    }
+
+    private RoomRecorder newRecorder(Set<InetAddress> allowedSources, int maxTracks) throws IOException {
+        return new RoomRecorder("room", directory, 2000, 64, 1500,
+                InetAddress.getLoopbackAddress(), allowedSources, maxTracks);
+    }
+
+    private static DatagramChannel openPeer() throws IOException {
+        DatagramChannel peer = DatagramChannel.open();
+        peer.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return peer;
+    }
+
+    private static void send(DatagramChannel peer, RoomRecorder recorder, int sequence, int ssrc) throws Exception {
+        ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE);
+        packet.put((byte) 0x80).put((byte) 96).putShort((short) sequence).putInt(sequence * 960).putInt(ssrc);
+        packet.position(PACKET_SIZE).flip();
+        peer.send(packet, new InetSocketAddress(InetAddress.getLoopbackAddress(), recorder.getPort()));
+        // Не переполняем буфер приёма сокета
+        Thread.sleep(1);
+    }
+
+    private static void awaitReceived(RoomRecorder recorder, long packets) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((long) recorder.getStats().get("receivedPackets") < packets && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private List<String> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.videoconf.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomRecordingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final RoomRecordingService service = new RoomRecordingService();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(service, "recordingDirectory", directory.toString());
+        ReflectionTestUtils.setField(service, "segmentSize", 1_000_000L);
+        ReflectionTestUtils.setField(service, "queueCapacity", 8);
+        ReflectionTestUtils.setField(service, "packetBufferSize", 1500);
+        ReflectionTestUtils.setField(service, "bindAddress", "127.0.0.1");
+        ReflectionTestUtils.setField(service, "defaultAllowedSources", List.of("127.0.0.1"));
+        ReflectionTestUtils.setField(service, "maxTracks", 4);
+        ReflectionTestUtils.setField(service, "maxRecorders", 2);
+    }
+
+    @AfterEach
+    void stopAll() {
+        service.stopAll();
+    }
+
+    @Test
+    void rejectsRecordersBeyondLimit() throws Exception {
+        RoomRecorder first = service.startRecording("room1", null);
+        service.startRecording("room2", null);
+
+        // Повторный старт той же комнаты не занимает новый слот
+        assertSame(first, service.startRecording("room1", null));
+        assertThrows(IllegalStateException.class, () -> service.startRecording("room3", null));
+        assertFalse(service.isRecording("room3"));
+
+        service.stopRecording("room1");
+        service.startRecording("room3", null);
+        assertTrue(service.isRecording("room3"));
+    }
+
+    @Test
+    void failedBindLeavesNoDirectoryOrRecorder() throws Exception {
+        // 192.0.2.1 (TEST-NET-1) не назначен ни одному интерфейсу
+        ReflectionTestUtils.setField(service, "bindAddress", "192.0.2.1");
+
+        assertThrows(IOException.class, () -> service.startRecording("room", null));
+
+        assertFalse(service.isRecording("room"));
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
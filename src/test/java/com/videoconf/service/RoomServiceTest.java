@@ -0,0 +1,96 @@
+package com.videoconf.service;
+
+import com.videoconf.model.Room;
+import com.videoconf.model.RoomSummary;
+import com.videoconf.repository.RoomRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(RoomService.class)
+class RoomServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void keysetBatchesBreakCreatedAtTiesById() throws Exception {
+        saveRoom("b", T0, true);
+        saveRoom("a", T0, true);
+        saveRoom("d", T0, true);
+        saveRoom("c", T0, true);
+        saveRoom("early", T0.minusMinutes(1), true);
+        saveRoom("late", T0.plusMinutes(1), true);
+        saveRoom("closed", T0, false);
+
+        List<List<String>> batches = collectBatches(2);
+
+        // Граница пачки попадает внутрь группы с одинаковым createdAt
+        assertEquals(List.of(
+                List.of("early", "a"),
+                List.of("b", "c"),
+                List.of("d", "late")), batches);
+    }
+
+    @Test
+    void stopsAfterPartialBatch() throws Exception {
+        saveRoom("a", T0, true);
+        saveRoom("b", T0.plusSeconds(1), true);
+        saveRoom("c", T0.plusSeconds(2), true);
+
+        assertEquals(List.of(List.of("a", "b"), List.of("c")), collectBatches(2));
+        assertEquals(List.of(List.of("a", "b", "c")), collectBatches(5));
+    }
+
+    @Test
+    void batchesDoNotPopulatePersistenceContext() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            saveRoom("room" + i, T0.plusSeconds(i), true);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        collectBatches(3);
+
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        assertEquals(0, session.getStatistics().getEntityCount());
+    }
+
+    private List<List<String>> collectBatches(int batchSize) throws Exception {
+        List<List<String>> batches = new ArrayList<>();
+        roomService.forEachActiveRoomBatch(batchSize, rooms ->
+                batches.add(rooms.stream().map(RoomSummary::getId).collect(Collectors.toList())));
+        return batches;
+    }
+
+    private void saveRoom(String id, LocalDateTime createdAt, boolean active) {
+        Room room = new Room();
+        room.setId(id);
+        room.setName("Room " + id);
+        room.setOwnerId("owner");
+        room.setCreatedAt(createdAt);
+        room.setActive(active);
+        room.setMaxParticipants(10);
+        room.setInviteCode("code-" + id);
+        roomRepository.save(room);
+    }
+}
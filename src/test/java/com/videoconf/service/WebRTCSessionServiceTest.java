@@ -0,0 +1,158 @@
+package com.videoconf.service;
+
+import com.videoconf.service.WebRTCSessionService.NegotiationState;
+import com.videoconf.service.WebRTCSessionService.PeerNegotiation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebRTCSessionServiceTest {
+
+    private final WebRTCSessionService service = new WebRTCSessionService();
+
+    @Test
+    void newcomerOffersToEveryExistingPeerOnce() {
+        assertTrue(service.joinRoom("room", "a", "A").isEmpty());
+        List<PeerNegotiation> planB = service.joinRoom("room", "b", "B");
+        List<PeerNegotiation> planC = service.joinRoom("room", "c", "C");
+
+        assertEquals(1, planB.size());
+        assertEquals("b", planB.get(0).offererId);
+        assertEquals("a", planB.get(0).answererId);
+
+        assertEquals(2, planC.size());
+        planC.forEach(negotiation -> assertEquals("c", negotiation.offererId));
+
+        // Три участника - три пары, у каждой одна запись
+        assertEquals(3, service.getNegotiations("room").size());
+    }
+
+    @Test
+    void dropsOfferFromAnswererWhileNegotiating() {
+        service.joinRoom("room", "a", "A");
+        service.joinRoom("room", "b", "B");
+
+        assertFalse(service.registerOffer("room", "a", "b"));
+        assertTrue(service.registerOffer("room", "b", "a"));
+        // Встречный offer и после отправки offer'а назначенной стороной
+        assertFalse(service.registerOffer("room", "a", "b"));
+
+        service.registerAnswer("room", "a", "b");
+        assertEquals(NegotiationState.CONNECTED, service.getNegotiations("room").get(0).state);
+    }
+
+    @Test
+    void ignoresAnswerFromOfferer() {
+        service.joinRoom("room", "a", "A");
+        service.joinRoom("room", "b", "B");
+        service.registerOffer("room", "b", "a");
+
+        service.registerAnswer("room", "b", "a");
+
+        assertEquals(NegotiationState.OFFER_SENT, service.getNegotiations("room").get(0).state);
+    }
+
+    @Test
+    void eitherSideMayRenegotiateAfterConnected() {
+        service.joinRoom("room", "a", "A");
+        service.joinRoom("room", "b", "B");
+        service.registerOffer("room", "b", "a");
+        service.registerAnswer("room", "a", "b");
+
+        assertTrue(service.registerOffer("room", "a", "b"));
+        PeerNegotiation negotiation = service.getNegotiations("room").get(0);
+        assertEquals("a", negotiation.offererId);
+        assertEquals("b", negotiation.answererId);
+        assertEquals(NegotiationState.OFFER_SENT, negotiation.state);
+
+        // Встречная попытка во время повторного согласования отбрасывается
+        assertFalse(service.registerOffer("room", "b", "a"));
+
+        service.registerAnswer("room", "b", "a");
+        assertEquals(NegotiationState.CONNECTED, negotiation.state);
+    }
+
+    @Test
+    void offerForUnplannedPairPassesWithoutCreatingEntries() {
+        assertTrue(service.registerOffer("ghost-room", "x", "y"));
+        service.registerAnswer("ghost-room", "y", "x");
+
+        assertTrue(service.getNegotiations("ghost-room").isEmpty());
+    }
+
+    @Test
+    void lateOfferDoesNotRestorePairAfterLeave() {
+        service.joinRoom("room", "a", "A");
+        service.joinRoom("room", "b", "B");
+        service.removeUserFromRoom("room", "a");
+        service.removeUserFromRoom("room", "b");
+
+        assertTrue(service.registerOffer("room", "b", "a"));
+
+        assertTrue(service.getNegotiations("room").isEmpty());
+        assertEquals(0, service.getRoomUserCount("room"));
+    }
+
+    @Test
+    void leavingRemovesPairsOfThatUser() {
+        service.joinRoom("room", "a", "A");
+        service.joinRoom("room", "b", "B");
+        service.joinRoom("room", "c", "C");
+
+        service.removeUserFromRoom("room", "c");
+
+        assertEquals(1, service.getNegotiations("room").size());
+        service.removeUserFromRoom("room", "a");
+        service.removeUserFromRoom("room", "b");
+        assertTrue(service.getNegotiations("room").isEmpty());
+        assertEquals(0, service.getRoomUserCount("room"));
+    }
+
+    @Test
+    void concurrentJoinsPlanEachPairExactlyOnce() throws Exception {
+        int users = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<PeerNegotiation>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < users; i++) {
+                String userId = "user" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.joinRoom("room", userId, userId);
+                }));
+            }
+            start.countDown();
+
+            Set<String> plannedPairs = new HashSet<>();
+            for (Future<List<PeerNegotiation>> future : futures) {
+                for (PeerNegotiation negotiation : future.get(5, TimeUnit.SECONDS)) {
+                    String pair = negotiation.offererId.compareTo(negotiation.answererId) < 0
+                            ? negotiation.offererId + "|" + negotiation.answererId
+                            : negotiation.answererId + "|" + negotiation.offererId;
+                    // Пара не может попасть в два плана - иначе обе стороны отправили бы offer
+                    assertTrue(plannedPairs.add(pair), "pair planned twice: " + pair);
+                }
+            }
+
+            int pairs = users * (users - 1) / 2;
+            assertEquals(pairs, plannedPairs.size());
+            assertEquals(pairs, service.getNegotiations("room").size());
+            assertEquals(users, service.getRoomUserCount("room"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}